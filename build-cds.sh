@@ -0,0 +1,12 @@
+#!/bin/sh
+# Builds the kiosk launcher jar and records a class-data-sharing archive for it.
+# -XX:ArchiveClassesAtExit only accepts jar classpaths, so the classes are packaged first.
+# Launch with: java -XX:SharedArchiveFile=out/toolrental.jsa -jar out/toolrental.jar
+set -e
+cd "$(dirname "$0")"
+
+rm -rf out/classes
+mkdir -p out/classes
+javac -d out/classes $(ls src/*.java | grep -v 'Test\.java$')
+jar --create --file out/toolrental.jar --main-class ToolRental -C out/classes .
+java -XX:ArchiveClassesAtExit=out/toolrental.jsa -jar out/toolrental.jar --warmup
@@ -0,0 +1,12 @@
+#!/bin/sh
+# Launches a kiosk checkout session from the jar and class-data-sharing archive built by build-cds.sh.
+# Startup is dominated by JVM boot and class loading, not by the checkout itself, so the session runs
+# with only the C1 compiler, the serial collector and no perf data file. Pass --warmup to benchmark.
+cd "$(dirname "$0")"
+
+exec java \
+    -XX:SharedArchiveFile=out/toolrental.jsa \
+    -XX:TieredStopAtLevel=1 \
+    -XX:+UseSerialGC \
+    -XX:-UsePerfData \
+    -jar out/toolrental.jar "$@"
@@ -1,8 +1,13 @@
+import java.io.PrintStream;
 import java.text.NumberFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
 public class RentalAgreement {
+    // DateTimeFormatter is immutable and safe to share; NumberFormat is not, so it is still created per call
+    private static final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+    public int agreementId; // assigned when the agreement is stored, 0 until then
     public Tool toolRented;
     public LocalDate checkoutDate;
     public LocalDate dueDate;
@@ -53,8 +58,7 @@ public class RentalAgreement {
      * @return String representation of date in format MM/DD/YYYY
      */
     public String formatDate(LocalDate date) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-        return formatter.format(date);
+        return dateFormatter.format(date);
     }
 
     /**
@@ -71,18 +75,27 @@ public class RentalAgreement {
      * Prints the rental agreement to the console.
      */
     public void printRentalAgreement() {
-        System.out.println("RENTAL AGREEMENT");
-        System.out.println("Tool code: " + toolRented.toolCode);
-        System.out.println("Tool type: " + toolRented.toolType);
-        System.out.println("Tool brand: " + toolRented.toolBrand);
-        System.out.println("Rental days: " + rentalDays);
-        System.out.println("Checkout date: " + formatDate(checkoutDate));
-        System.out.println("Due date: " + formatDate(dueDate));
-        System.out.println("Daily rental charge: " + formatCurrency(toolRented.dailyCharge));
-        System.out.println("Charge days: " + chargeDays);
-        System.out.println("Pre-discount charge: " + formatCurrency(preDiscountCharge));
-        System.out.println("Discount percent: " + formatPercent(discountPercent));
-        System.out.println("Discount amount: " + formatCurrency(discountAmount));
-        System.out.println("Final charge: " + formatCurrency(finalCharge));
+        printRentalAgreement(System.out);
+    }
+
+    /**
+     * Prints the rental agreement to the given output.
+     *
+     * @param output the stream the agreement is printed to
+     */
+    public void printRentalAgreement(PrintStream output) {
+        output.println("RENTAL AGREEMENT");
+        output.println("Tool code: " + toolRented.toolCode);
+        output.println("Tool type: " + toolRented.toolType);
+        output.println("Tool brand: " + toolRented.toolBrand);
+        output.println("Rental days: " + rentalDays);
+        output.println("Checkout date: " + formatDate(checkoutDate));
+        output.println("Due date: " + formatDate(dueDate));
+        output.println("Daily rental charge: " + formatCurrency(toolRented.dailyCharge));
+        output.println("Charge days: " + chargeDays);
+        output.println("Pre-discount charge: " + formatCurrency(preDiscountCharge));
+        output.println("Discount percent: " + formatPercent(discountPercent));
+        output.println("Discount amount: " + formatCurrency(discountAmount));
+        output.println("Final charge: " + formatCurrency(finalCharge));
     }
 }
@@ -0,0 +1,334 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class RentalAgreementStore {
+    private final List<RentalAgreement> agreements = new ArrayList<>(); // agreement id - 1 -> agreement
+    private final BitSet returned = new BitSet(); // set for agreement ids whose tool has been returned
+    private final Map<ToolCode, IntBucket> byTool = new EnumMap<>(ToolCode.class);
+    private final EpochDayIndex byCheckoutDate = new EpochDayIndex();
+    private final EpochDayIndex byDueDate = new EpochDayIndex();
+    private int[] dueDatePositions = new int[16]; // agreement id -> its index in the byDueDate bucket, for O(1) removal
+    // Only agreements not yet returned, ordered by due date. Days drop out once everything due on them is back,
+    // so this stays as small as the number of due dates still open no matter how much history is stored.
+    private final TreeMap<Long, IntBucket> openByDueDate = new TreeMap<>();
+
+    public RentalAgreementStore() {
+        for (ToolCode code : ToolCode.values()) {
+            byTool.put(code, new IntBucket());
+        }
+    }
+
+    /**
+     * Stores an agreement, assigns its agreement id and adds it to every index.
+     *
+     * @param agreement the rental agreement to be stored
+     * @return the id assigned to the agreement
+     */
+    public int add(RentalAgreement agreement) throws Exception {
+        if (agreement.agreementId != 0) {
+            throw new Exception("Rental agreement " + agreement.agreementId + " has already been stored.");
+        }
+
+        agreements.add(agreement);
+        int agreementId = agreements.size();
+        agreement.agreementId = agreementId;
+
+        long dueEpochDay = agreement.dueDate.toEpochDay();
+        byTool.get(agreement.toolRented.toolCode).add(agreementId);
+        byCheckoutDate.getOrCreate(agreement.checkoutDate.toEpochDay()).add(agreementId);
+        addDueDate(dueEpochDay, agreementId);
+        addOpen(dueEpochDay, agreementId);
+
+        return agreementId;
+    }
+
+    /**
+     * Looks up an agreement by id.
+     *
+     * @param agreementId id assigned by add
+     * @return the stored RentalAgreement
+     */
+    public RentalAgreement get(int agreementId) throws Exception {
+        if (agreementId < 1 || agreementId > agreements.size()) {
+            throw new Exception("No rental agreement with id " + agreementId + ".");
+        }
+        return agreements.get(agreementId - 1);
+    }
+
+    /**
+     * Marks the tool on an agreement as returned, so it no longer shows as due back or overdue.
+     *
+     * @param agreementId id assigned by add
+     */
+    public void markReturned(int agreementId) throws Exception {
+        RentalAgreement agreement = get(agreementId);
+        if (returned.get(agreementId)) {
+            return;
+        }
+        returned.set(agreementId);
+        removeOpen(agreement.dueDate.toEpochDay(), agreementId);
+    }
+
+    /**
+     * Replaces a stored agreement with a re-priced version of it, e.g. after the rental is extended.
+     * Only the rental period may change, so just the due date indexes are updated.
+     *
+     * @param agreementId id assigned by add
+     * @param repriced the agreement for the new rental period, which takes over the id
+     */
+    public void replace(int agreementId, RentalAgreement repriced) throws Exception {
+        RentalAgreement agreement = get(agreementId);
+        if (repriced.toolRented.toolCode != agreement.toolRented.toolCode
+                || !repriced.checkoutDate.equals(agreement.checkoutDate)) {
+            throw new Exception("A re-priced agreement must keep the tool and checkout date of agreement " + agreementId + ".");
+        }
+
+        long oldDueEpochDay = agreement.dueDate.toEpochDay();
+        long newDueEpochDay = repriced.dueDate.toEpochDay();
+        removeDueDate(oldDueEpochDay, agreementId);
+        addDueDate(newDueEpochDay, agreementId);
+        if (!returned.get(agreementId)) {
+            removeOpen(oldDueEpochDay, agreementId);
+            addOpen(newDueEpochDay, agreementId);
+        }
+
+        repriced.agreementId = agreementId;
+        agreements.set(agreementId - 1, repriced);
+    }
+
+    /**
+     * Checks whether the tool on an agreement has been returned.
+     *
+     * @param agreementId id assigned by add
+     * @return true if markReturned has been called for the agreement
+     */
+    public boolean isReturned(int agreementId) throws Exception {
+        get(agreementId);
+        return returned.get(agreementId);
+    }
+
+    /**
+     * Returns the number of agreements stored, returned or not.
+     *
+     * @return the number of stored agreements
+     */
+    public int size() {
+        return agreements.size();
+    }
+
+    /**
+     * Finds the agreements for a given tool.
+     *
+     * @param code the tool code to search for
+     * @return every agreement for the tool, in the order they were added
+     */
+    public List<RentalAgreement> findByTool(ToolCode code) {
+        return toAgreements(byTool.get(code));
+    }
+
+    /**
+     * Finds the agreements checked out on a given date.
+     *
+     * @param checkoutDate the checkout date to search for
+     * @return every agreement checked out on that date
+     */
+    public List<RentalAgreement> findByCheckoutDate(LocalDate checkoutDate) {
+        return toAgreements(byCheckoutDate.get(checkoutDate.toEpochDay()));
+    }
+
+    /**
+     * Finds the agreements due on a given date.
+     *
+     * @param dueDate the due date to search for
+     * @return every agreement due on that date, including ones already returned
+     */
+    public List<RentalAgreement> findByDueDate(LocalDate dueDate) {
+        return toAgreements(byDueDate.get(dueDate.toEpochDay()));
+    }
+
+    /**
+     * Finds the agreements still out that are due back on a given date (i.e. "everything due back today").
+     *
+     * @param dueDate the due date to search for
+     * @return agreements due on that date that have not been returned
+     */
+    public List<RentalAgreement> findDueBack(LocalDate dueDate) {
+        return toAgreements(openByDueDate.get(dueDate.toEpochDay()));
+    }
+
+    /**
+     * Finds the agreements still out whose due date is before the given date.
+     * Only due dates that still have an agreement out are visited, so the cost grows with the
+     * number of overdue agreements rather than with the stored history or the days between.
+     *
+     * @param today the date to compare due dates against
+     * @return agreements past due that have not been returned
+     */
+    public List<RentalAgreement> findOverdue(LocalDate today) {
+        List<RentalAgreement> overdue = new ArrayList<>();
+        for (IntBucket bucket : openByDueDate.headMap(today.toEpochDay(), false).values()) {
+            addAgreements(bucket, overdue);
+        }
+        return overdue;
+    }
+
+    private void addDueDate(long dueEpochDay, int agreementId) {
+        if (agreementId >= dueDatePositions.length) {
+            dueDatePositions = Arrays.copyOf(dueDatePositions, Math.max(agreementId + 1, dueDatePositions.length * 2));
+        }
+        dueDatePositions[agreementId] = byDueDate.getOrCreate(dueEpochDay).add(agreementId);
+    }
+
+    private void removeDueDate(long dueEpochDay, int agreementId) {
+        // The bucket holds every agreement ever due that day, so remove by position rather than searching it
+        IntBucket bucket = byDueDate.get(dueEpochDay);
+        int position = dueDatePositions[agreementId];
+        int movedId = bucket.removeAt(position);
+        if (movedId != 0) {
+            dueDatePositions[movedId] = position;
+        }
+    }
+
+    private void addOpen(long dueEpochDay, int agreementId) {
+        openByDueDate.computeIfAbsent(dueEpochDay, day -> new IntBucket()).add(agreementId);
+    }
+
+    private void removeOpen(long dueEpochDay, int agreementId) {
+        IntBucket bucket = openByDueDate.get(dueEpochDay);
+        bucket.remove(agreementId);
+        if (bucket.size == 0) {
+            openByDueDate.remove(dueEpochDay);
+        }
+    }
+
+    private List<RentalAgreement> toAgreements(IntBucket bucket) {
+        if (bucket == null) {
+            return new ArrayList<>();
+        }
+        List<RentalAgreement> result = new ArrayList<>(bucket.size);
+        addAgreements(bucket, result);
+        return result;
+    }
+
+    private void addAgreements(IntBucket bucket, List<RentalAgreement> result) {
+        for (int i = 0; i < bucket.size; i++) {
+            result.add(agreements.get(bucket.values[i] - 1));
+        }
+    }
+
+    /**
+     * Growable list of agreement ids, stored as ints rather than boxed Integers.
+     */
+    private static class IntBucket {
+        private int[] values = new int[4];
+        private int size;
+
+        int add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = value;
+            return size++;
+        }
+
+        /**
+         * Removes the id at an index by moving the last id into its place.
+         *
+         * @return the id that was moved into the index, or 0 if the last id was removed
+         */
+        int removeAt(int index) {
+            int last = values[--size];
+            if (index == size) {
+                return 0;
+            }
+            values[index] = last;
+            return last;
+        }
+
+        void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    // Order within a day doesn't matter, so move the last id into the gap
+                    values[i] = values[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Open addressing hash map from epoch day to the ids of agreements on that day.
+     * Keys are kept in a long[] so lookups never box the day.
+     */
+    private static class EpochDayIndex {
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] keys = newKeys(16);
+        private IntBucket[] buckets = new IntBucket[16];
+        private int size;
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        private static int slot(long epochDay, int mask) {
+            long hash = epochDay * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        IntBucket get(long epochDay) {
+            int mask = keys.length - 1;
+            for (int i = slot(epochDay, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == epochDay) {
+                    return buckets[i];
+                }
+            }
+            return null;
+        }
+
+        IntBucket getOrCreate(long epochDay) {
+            IntBucket bucket = get(epochDay);
+            if (bucket != null) {
+                return bucket;
+            }
+            // Keep the table at most half full
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            bucket = new IntBucket();
+            insert(epochDay, bucket);
+            size++;
+            return bucket;
+        }
+
+        private void insert(long epochDay, IntBucket bucket) {
+            int mask = keys.length - 1;
+            int i = slot(epochDay, mask);
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = epochDay;
+            buckets[i] = bucket;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            IntBucket[] oldBuckets = buckets;
+            keys = newKeys(oldKeys.length * 2);
+            buckets = new IntBucket[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    insert(oldKeys[i], oldBuckets[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+public class RevenueForecast {
+    public static final int DEFAULT_HORIZON_DAYS = 90;
+
+    private final ToolRental toolRental;
+    private final RentalAgreementStore store; // assigns agreement ids and tracks which rentals are returned
+    private long startEpochDay; // first day of the forecast window, moved forward by moveWindow
+    private final int horizonDays; // number of days in the forecast window
+    private final Map<ToolCode, FenwickTree> revenueByTool = new EnumMap<>(ToolCode.class);
+    private final Map<Integer, RentalAgreement> rentals = new HashMap<>(); // agreement id -> agreement as forecast
+
+    public RevenueForecast(ToolRental toolRental, RentalAgreementStore store, LocalDate startDate) {
+        this(toolRental, store, startDate, DEFAULT_HORIZON_DAYS);
+    }
+
+    public RevenueForecast(ToolRental toolRental, RentalAgreementStore store, LocalDate startDate, int horizonDays) {
+        if (horizonDays < 1) {
+            throw new IllegalArgumentException("The forecast window must be at least 1 day.");
+        }
+        this.toolRental = toolRental;
+        this.store = store;
+        this.startEpochDay = startDate.toEpochDay();
+        this.horizonDays = horizonDays;
+        for (ToolCode code : ToolCode.values()) {
+            revenueByTool.put(code, new FenwickTree(horizonDays));
+        }
+    }
+
+    /**
+     * Adds an open rental or reservation to the forecast, storing it first if it has no agreement id yet.
+     * The final charge is spread over the agreement's charge days. Only days inside the window are totalled,
+     * but the whole rental is kept, so days beyond the horizon are counted once moveWindow reaches them.
+     *
+     * @param agreement the rental agreement to be forecast
+     * @return the agreement id used to extend or return the rental later
+     */
+    public int addRental(RentalAgreement agreement) throws Exception {
+        if (agreement.agreementId == 0) {
+            store.add(agreement);
+        } else if (store.get(agreement.agreementId) != agreement) {
+            throw new Exception("Agreement " + agreement.agreementId + " was not stored in this forecast's store.");
+        }
+        if (rentals.containsKey(agreement.agreementId)) {
+            throw new Exception("Agreement " + agreement.agreementId + " is already in the forecast.");
+        }
+        applyAgreement(agreement, 1);
+        rentals.put(agreement.agreementId, agreement);
+        return agreement.agreementId;
+    }
+
+    /**
+     * Extends a rental by re-pricing it for the longer rental period.
+     *
+     * @param agreementId id returned by addRental
+     * @param extraDays number of days to add to the rental period
+     * @return the re-priced RentalAgreement
+     */
+    public RentalAgreement extendRental(int agreementId, int extraDays) throws Exception {
+        RentalAgreement agreement = getOpenRental(agreementId);
+        return repriceRental(agreementId, agreement.rentalDays + extraDays);
+    }
+
+    /**
+     * Closes a rental on the given date and marks it returned in the store. The rental is re-priced
+     * through the return date, and a reservation returned on or before its checkout date is removed
+     * from the forecast. A returned rental can no longer be extended or returned.
+     *
+     * @param agreementId id returned by addRental
+     * @param returnDate the date the tool came back
+     * @return the re-priced RentalAgreement, or null if the rental was removed
+     */
+    public RentalAgreement returnRental(int agreementId, LocalDate returnDate) throws Exception {
+        RentalAgreement agreement = getOpenRental(agreementId);
+        long numRentalDays = ChronoUnit.DAYS.between(agreement.checkoutDate, returnDate);
+        RentalAgreement repriced = null;
+        if (numRentalDays < 1) {
+            removeRental(agreementId);
+        } else if (numRentalDays != agreement.rentalDays) {
+            repriced = repriceRental(agreementId, (int) numRentalDays);
+        } else {
+            repriced = agreement;
+        }
+        store.markReturned(agreementId);
+        return repriced;
+    }
+
+    /**
+     * Removes a rental from the forecast entirely. The agreement stays in the store.
+     *
+     * @param agreementId id returned by addRental
+     */
+    public void removeRental(int agreementId) throws Exception {
+        applyAgreement(getRental(agreementId), -1);
+        rentals.remove(agreementId);
+    }
+
+    /**
+     * Moves the forecast window to start on a new date, e.g. once a day so it keeps covering the next
+     * horizon days. The per-day totals are rebuilt from every rental in the forecast, which costs
+     * O(total rental days) rather than the O(days affected) of the other updates.
+     *
+     * @param startDate first day of the new window
+     */
+    public void moveWindow(LocalDate startDate) {
+        startEpochDay = startDate.toEpochDay();
+        for (ToolCode code : ToolCode.values()) {
+            revenueByTool.put(code, new FenwickTree(horizonDays));
+        }
+        for (RentalAgreement agreement : rentals.values()) {
+            applyAgreement(agreement, 1);
+        }
+    }
+
+    /**
+     * Projected revenue for one tool between two dates, inclusive.
+     *
+     * @param code the tool to total
+     * @param startDate beginning of date range
+     * @param endDate end of date range
+     * @return projected revenue in dollars
+     */
+    public double getRevenue(ToolCode code, LocalDate startDate, LocalDate endDate) {
+        return getRevenueCents(code, startDate, endDate) / 100.0;
+    }
+
+    /**
+     * Projected revenue for all tools between two dates, inclusive.
+     *
+     * @param startDate beginning of date range
+     * @param endDate end of date range
+     * @return projected revenue in dollars
+     */
+    public double getRevenue(LocalDate startDate, LocalDate endDate) {
+        long totalCents = 0;
+        for (ToolCode code : ToolCode.values()) {
+            totalCents += getRevenueCents(code, startDate, endDate);
+        }
+        return totalCents / 100.0;
+    }
+
+    /**
+     * Projected revenue for one tool on a single day.
+     *
+     * @param code the tool to total
+     * @param date the day to total
+     * @return projected revenue in dollars
+     */
+    public double getDailyRevenue(ToolCode code, LocalDate date) {
+        return getRevenue(code, date, date);
+    }
+
+    private long getRevenueCents(ToolCode code, LocalDate startDate, LocalDate endDate) {
+        // Clamp as long first, dates far from the window would overflow an int offset
+        long from = Math.max(startDate.toEpochDay() - startEpochDay, 0);
+        long to = Math.min(endDate.toEpochDay() - startEpochDay, horizonDays - 1);
+        if (from > to) {
+            return 0;
+        }
+        return revenueByTool.get(code).rangeSum((int) from, (int) to);
+    }
+
+    private RentalAgreement getRental(int agreementId) throws Exception {
+        RentalAgreement agreement = rentals.get(agreementId);
+        if (agreement == null) {
+            throw new Exception("No rental with id " + agreementId + " in the forecast.");
+        }
+        return agreement;
+    }
+
+    private RentalAgreement getOpenRental(int agreementId) throws Exception {
+        RentalAgreement agreement = getRental(agreementId);
+        if (store.isReturned(agreementId)) {
+            throw new Exception("Rental " + agreementId + " has already been returned.");
+        }
+        return agreement;
+    }
+
+    private RentalAgreement repriceRental(int agreementId, int numRentalDays) throws Exception {
+        RentalAgreement agreement = getRental(agreementId);
+        RentalAgreement repriced = toolRental.generateRentalAgreement(
+                agreement.toolRented.toolCode,
+                numRentalDays,
+                agreement.discountPercent,
+                agreement.checkoutDate
+        );
+        store.replace(agreementId, repriced);
+        applyAgreement(agreement, -1);
+        applyAgreement(repriced, 1);
+        rentals.put(agreementId, repriced);
+        return repriced;
+    }
+
+    /**
+     * Adds (sign = 1) or removes (sign = -1) an agreement's revenue from the per-day totals.
+     * Works in cents so the days of a rental always add back up to its final charge:
+     * each booked day gets an even share, and the last booked day also takes the remainder.
+     * Booked days follow the tool's charge flags, so where numWeekendDaysInRange over-counts weekends
+     * there is one more booked day than agreement.chargeDays and the same charge is spread thinner.
+     */
+    private void applyAgreement(RentalAgreement agreement, int sign) {
+        long checkoutEpochDay = agreement.checkoutDate.toEpochDay();
+        long[] bookedEpochDays = new long[agreement.rentalDays];
+        int numBookedDays = 0;
+
+        for (int i = 1; i <= agreement.rentalDays; i++) {
+            LocalDate date = agreement.checkoutDate.plusDays(i);
+            if (isChargeDay(agreement.toolRented, date) || isChargedDueDateHoliday(agreement, date)) {
+                bookedEpochDays[numBookedDays++] = checkoutEpochDay + i;
+            }
+        }
+
+        long finalCents = Math.round(agreement.finalCharge * 100);
+        ToolCode code = agreement.toolRented.toolCode;
+        if (numBookedDays == 0) {
+            // Nothing to spread over, book whatever was charged on the due date
+            addCents(code, agreement.dueDate.toEpochDay(), sign * finalCents);
+            return;
+        }
+
+        long centsPerDay = finalCents / numBookedDays;
+        long remainder = finalCents % numBookedDays;
+        for (int i = 0; i < numBookedDays; i++) {
+            long cents = (i == numBookedDays - 1) ? centsPerDay + remainder : centsPerDay;
+            addCents(code, bookedEpochDays[i], sign * cents);
+        }
+    }
+
+    /**
+     * Determines if the tool is charged on a day, from its weekendCharge and holidayCharge flags.
+     */
+    private boolean isChargeDay(Tool rentedTool, LocalDate date) {
+        DayOfWeek dayOfWeek = date.getDayOfWeek();
+        if (!rentedTool.weekendCharge && (dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY)) {
+            return false;
+        }
+        return rentedTool.holidayCharge || !toolRental.isHoliday(date);
+    }
+
+    /**
+     * numHolidaysInRange only counts holidays strictly before the due date, so getNumChargeDays
+     * charges a holiday that falls on the due date even for tools without a holiday charge.
+     * That day was paid for, so the forecast books it too.
+     */
+    private boolean isChargedDueDateHoliday(RentalAgreement agreement, LocalDate date) {
+        return date.equals(agreement.dueDate) && !agreement.toolRented.holidayCharge && toolRental.isHoliday(date);
+    }
+
+    private void addCents(ToolCode code, long epochDay, long cents) {
+        long index = epochDay - startEpochDay;
+        if (index >= 0 && index < horizonDays) {
+            revenueByTool.get(code).add((int) index, cents);
+        }
+    }
+
+    /**
+     * Fenwick (binary indexed) tree of cents per day, indexed by days since the forecast start.
+     * Point updates and prefix sums are both O(log n).
+     */
+    private static class FenwickTree {
+        private final long[] tree;
+
+        FenwickTree(int size) {
+            tree = new long[size + 1];
+        }
+
+        void add(int index, long value) {
+            for (int i = index + 1; i < tree.length; i += i & -i) {
+                tree[i] += value;
+            }
+        }
+
+        long prefixSum(int index) {
+            long sum = 0;
+            for (int i = index + 1; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        long rangeSum(int from, int to) {
+            return prefixSum(to) - (from > 0 ? prefixSum(from - 1) : 0);
+        }
+    }
+}
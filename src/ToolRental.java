@@ -1,12 +1,22 @@
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.Month;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 import static java.time.temporal.TemporalAdjusters.firstInMonth;
 
 public class ToolRental {
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+    private long timeToFirstAgreement = -1; // ms from process start until the first agreement was generated
 
     /**
      * Determines when Independence Day should be observed.
@@ -25,6 +35,19 @@ public class ToolRental {
         return observedIndependenceDay;
     }
 
+    /**
+     * Determines if a date is one of the holidays considered by numHolidaysInRange:
+     * the observed Independence Day or Labor Day (the first Monday in September).
+     *
+     * @param date the date to check
+     * @return true if the date is an observed holiday
+     */
+    protected boolean isHoliday(LocalDate date) {
+        int year = date.getYear();
+        LocalDate laborDay = LocalDate.of(year, 9, 1).with(firstInMonth(DayOfWeek.MONDAY));
+        return date.equals(getObservedIndependenceDay(LocalDate.of(year, 7, 4))) || date.equals(laborDay);
+    }
+
     /**
      * Calculate the number of charge days, from day after rental through the due date
      *
@@ -238,40 +261,51 @@ public class ToolRental {
      * be used to complete the checkout process.
      */
     public void checkout() {
-        Scanner scanner = new Scanner(System.in);
+        checkout(System.in, System.out);
+    }
+
+    /**
+     * Runs the checkout process, reading the user's answers from the given input.
+     *
+     * @param input the stream the tool code, rental days, discount and checkout date are read from
+     * @param output the stream prompts and the rental agreement are printed to
+     * @return the RentalAgreement that was printed, or null if one could not be generated
+     */
+    protected RentalAgreement checkout(InputStream input, PrintStream output) {
+        Scanner scanner = new Scanner(input);
         ToolCode code;
         int numRentalDays;
         int discountPercent;
         LocalDate checkoutDate;
 
-        System.out.println("Welcome to checkout!");
+        output.println("Welcome to checkout!");
 
         // Get tool code input from user.
         while (true) {
-            System.out.print("Please enter tool code: ");
+            output.print("Please enter tool code: ");
             try {
                 code = ToolCode.valueOf(scanner.next().toUpperCase());
                 break;
             } catch (Exception e) {
-                System.out.println("The tool code provided is invalid, please try again.");
+                output.println("The tool code provided is invalid, please try again.");
             }
         }
 
         // Get number of rental days from user. Value must be >= 1.
         while (true) {
-            System.out.print("Please enter the number of days for this rental: ");
+            output.print("Please enter the number of days for this rental: ");
             try {
                 numRentalDays = scanner.nextInt();
                 break;
             } catch (Exception e) {
-                System.out.println("The number of rental days must be a whole number >= 1, please try again.");
+                output.println("The number of rental days must be a whole number >= 1, please try again.");
                 scanner.nextLine();
             }
         }
 
         // Get number of rental days from user. Value must be >= 1.
         while (true) {
-            System.out.print("Please enter the discount percentage as a whole number (0-100): ");
+            output.print("Please enter the discount percentage as a whole number (0-100): ");
             try {
                 discountPercent = scanner.nextInt();
                 if (discountPercent < 0 || discountPercent > 100) {
@@ -279,19 +313,19 @@ public class ToolRental {
                 }
                 break;
             } catch (Exception e) {
-                System.out.println("Discount percentage must be a whole number between 0-100, please try again.");
+                output.println("Discount percentage must be a whole number between 0-100, please try again.");
                 scanner.nextLine();
             }
         }
 
         // Get checkout date from user.
         while (true) {
-            System.out.print("Please enter checkout date in the format (MM/DD/YYYY): ");
+            output.print("Please enter checkout date in the format (MM/DD/YYYY): ");
             try {
                 checkoutDate = LocalDate.parse(scanner.next(), formatter);
                 break;
             } catch (Exception e) {
-                System.out.println("Invalid date provided, please try again.");
+                output.println("Invalid date provided, please try again.");
             }
         }
         // End user input
@@ -299,15 +333,87 @@ public class ToolRental {
 
         try {
             RentalAgreement rentalAgreement = generateRentalAgreement(code, numRentalDays, discountPercent, checkoutDate);
-            System.out.println(); // add newline before rental agreement is printed
-            rentalAgreement.printRentalAgreement();
+            if (timeToFirstAgreement < 0) {
+                timeToFirstAgreement = millisSinceProcessStart();
+            }
+            output.println(); // add newline before rental agreement is printed
+            rentalAgreement.printRentalAgreement(output);
+            return rentalAgreement;
+        } catch (Exception e) {
+            output.println(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Milliseconds since the JVM process was started, taken without loading JMX.
+     * On Linux both values come from /proc relative to boot (10 ms resolution). This assumes the
+     * kernel reports clock ticks as USER_HZ = 100, which is fixed for /proc on every mainstream
+     * architecture; Java has no portable way to read sysconf(_SC_CLK_TCK) to check it.
+     * Elsewhere it falls back to ProcessHandle, whose start instant is derived from a boot time
+     * that is only whole seconds, so that value can be off by up to a second.
+     */
+    private static long millisSinceProcessStart() {
+        try {
+            // Field 22 of /proc/self/stat is the start time in clock ticks (USER_HZ = 100 per second) after boot;
+            // the command name in field 2 may contain spaces, so count fields from its closing parenthesis
+            String stat = Files.readString(Path.of("/proc/self/stat"));
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            long startMillis = Long.parseLong(fields[19]) * 10;
+            String uptime = Files.readString(Path.of("/proc/uptime"));
+            long uptimeMillis = Math.round(Double.parseDouble(uptime.substring(0, uptime.indexOf(' '))) * 1000);
+            return uptimeMillis - startMillis;
         } catch (Exception e) {
-            System.out.println(e.getMessage());
+            return ProcessHandle.current().info().startInstant()
+                    .map(start -> System.currentTimeMillis() - start.toEpochMilli())
+                    .orElse(-1L);
+        }
+    }
+
+    /**
+     * Returns how long after process start the first rental agreement was generated.
+     * In an interactive checkout this is mostly the customer's typing time, so the startup benchmark
+     * is "./kiosk.sh --warmup", which answers the prompts from canned input and prints this value.
+     *
+     * @return time-to-first-agreement in milliseconds, or -1 if no agreement has been generated yet
+     */
+    public long getTimeToFirstAgreement() {
+        return timeToFirstAgreement;
+    }
+
+    /**
+     * Runs checkout() once for every tool in the catalog, answering its prompts from canned input
+     * instead of the console, and discards the printed agreements.
+     * The rental window spans both holidays, so this loads the same classes a real kiosk session does:
+     * Scanner and its regex support, java.time, the formatters and every Tool subclass.
+     * Running it under -XX:ArchiveClassesAtExit records the metadata of those classes in a dynamic
+     * class-data-sharing archive. Static state is not archived and is still initialized at startup.
+     *
+     * @return the agreement generated for each ToolCode, in declaration order
+     */
+    public List<RentalAgreement> warmUp() {
+        List<RentalAgreement> agreements = new ArrayList<>();
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        for (ToolCode code : ToolCode.values()) {
+            String answers = code + "\n70\n10\n07/01/2024\n";
+            agreements.add(checkout(new ByteArrayInputStream(answers.getBytes(StandardCharsets.UTF_8)), discard));
         }
+        return agreements;
     }
 
+    /**
+     * Starts the interactive checkout. Passing "--warmup" runs warmUp() instead and reports the
+     * time-to-first-agreement. build-cds.sh uses this to package the app as a jar and record a
+     * class-data-sharing archive, and kiosk.sh launches the jar with that archive and startup-tuned
+     * JVM options. "./kiosk.sh --warmup" is the benchmark for the kiosk's startup time.
+     */
     public static void main(String[] args) {
         ToolRental toolRental = new ToolRental();
+        if (args.length > 0 && args[0].equals("--warmup")) {
+            toolRental.warmUp();
+            System.out.println("Time to first agreement: " + toolRental.getTimeToFirstAgreement() + " ms");
+            return;
+        }
         toolRental.checkout();
     }
-}
\ No newline at end of file
+}
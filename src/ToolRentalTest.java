@@ -1,6 +1,7 @@
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -255,4 +256,280 @@ class ToolRentalTest {
             throw new RuntimeException(e);
         }
     }
+
+    @Test
+    void testWarmUp() {
+        ToolRental toolRental = new ToolRental();
+
+        // Warm-up should run checkout for every tool in the catalog and record when the first agreement completed
+        List<RentalAgreement> agreements = toolRental.warmUp();
+        assertEquals(ToolCode.values().length, agreements.size());
+        for (int i = 0; i < agreements.size(); i++) {
+            assertNotNull(agreements.get(i));
+            assertEquals(ToolCode.values()[i], agreements.get(i).toolRented.toolCode);
+            assertEquals(LocalDate.of(2024, 7, 1), agreements.get(i).checkoutDate);
+            assertEquals(70, agreements.get(i).rentalDays);
+        }
+        assertTrue(toolRental.getTimeToFirstAgreement() >= 0);
+    }
+
+    @Test
+    void testRevenueForecast() {
+        ToolRental toolRental = new ToolRental();
+        RentalAgreementStore store = new RentalAgreementStore();
+        RevenueForecast forecast = new RevenueForecast(toolRental, store, LocalDate.of(2020, 7, 1));
+
+        try {
+            // Ladder checked out Thursday July 2, 2020 for 3 days, final charge 3.58 over 2 charge days (Sat., Sun.)
+            RentalAgreement agreement = toolRental.generateRentalAgreement(ToolCode.LADW, 3, 10, LocalDate.of(2020, 7, 2));
+            int rentalId = forecast.addRental(agreement);
+            assertEquals(agreement.agreementId, rentalId);
+            assertSame(agreement, store.get(rentalId));
+
+            assertEquals(3.58, forecast.getRevenue(ToolCode.LADW, LocalDate.of(2020, 7, 1), LocalDate.of(2020, 9, 28)));
+            // Friday July 3 is the observed holiday, no charge
+            assertEquals(0, forecast.getDailyRevenue(ToolCode.LADW, LocalDate.of(2020, 7, 3)));
+            assertEquals(1.79, forecast.getDailyRevenue(ToolCode.LADW, LocalDate.of(2020, 7, 4)));
+            assertEquals(1.79, forecast.getDailyRevenue(ToolCode.LADW, LocalDate.of(2020, 7, 5)));
+            assertEquals(0, forecast.getRevenue(ToolCode.CHNS, LocalDate.of(2020, 7, 1), LocalDate.of(2020, 9, 28)));
+
+            // Extending by 2 days adds Mon. and Tue. -> 4 charge days, 7.96 - 0.80 = 7.16
+            RentalAgreement extended = forecast.extendRental(rentalId, 2);
+            assertEquals(7.16, extended.finalCharge);
+            assertEquals(7.16, forecast.getRevenue(LocalDate.of(2020, 7, 1), LocalDate.of(2020, 9, 28)));
+            // The store keeps the extended agreement under the same id and due date
+            assertSame(extended, store.get(rentalId));
+            assertEquals(1, store.findDueBack(LocalDate.of(2020, 7, 7)).size());
+            assertEquals(0, store.findDueBack(LocalDate.of(2020, 7, 5)).size());
+
+            // Returning the tool on Saturday re-prices the rental through that day only and closes it
+            forecast.returnRental(rentalId, LocalDate.of(2020, 7, 4));
+            assertEquals(1.79, forecast.getRevenue(LocalDate.of(2020, 7, 1), LocalDate.of(2020, 9, 28)));
+            assertTrue(store.isReturned(rentalId));
+            assertThrows(Exception.class, () -> forecast.extendRental(rentalId, 1));
+            assertThrows(Exception.class, () -> forecast.returnRental(rentalId, LocalDate.of(2020, 7, 5)));
+
+            // Dates far outside the window are clamped rather than overflowing
+            assertEquals(1.79, forecast.getRevenue(LocalDate.MIN, LocalDate.MAX));
+            assertEquals(0, forecast.getRevenue(LocalDate.MAX, LocalDate.MAX));
+            assertEquals(0, forecast.getRevenue(LocalDate.MIN, LocalDate.MIN));
+
+            // Days outside the forecast window are not counted
+            RentalAgreement lateReservation = toolRental.generateRentalAgreement(ToolCode.CHNS, 5, 0, LocalDate.of(2020, 10, 1));
+            forecast.addRental(lateReservation);
+            assertEquals(1.79, forecast.getRevenue(LocalDate.of(2020, 7, 1), LocalDate.of(2020, 12, 31)));
+
+            forecast.removeRental(rentalId);
+            assertEquals(0, forecast.getRevenue(LocalDate.of(2020, 7, 1), LocalDate.of(2020, 9, 28)));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        // Unknown rental ids are rejected
+        assertThrows(Exception.class, () -> forecast.extendRental(999, 1));
+    }
+
+    @Test
+    void testRevenueForecastChargeDays() {
+        ToolRental toolRental = new ToolRental();
+
+        try {
+            // Chainsaw checked out Saturday Jan. 5, 2019 for 8 days: no weekend charge, so only Mon.-Fri. are booked
+            RevenueForecast forecast = new RevenueForecast(toolRental, new RentalAgreementStore(), LocalDate.of(2019, 1, 1));
+            RentalAgreement chainsaw = toolRental.generateRentalAgreement(ToolCode.CHNS, 8, 0, LocalDate.of(2019, 1, 5));
+            forecast.addRental(chainsaw);
+
+            assertEquals(0, forecast.getDailyRevenue(ToolCode.CHNS, LocalDate.of(2019, 1, 6)));
+            for (int day = 7; day <= 11; day++) {
+                assertEquals(1.49, forecast.getDailyRevenue(ToolCode.CHNS, LocalDate.of(2019, 1, day)));
+            }
+            assertEquals(0, forecast.getDailyRevenue(ToolCode.CHNS, LocalDate.of(2019, 1, 12)));
+            assertEquals(0, forecast.getDailyRevenue(ToolCode.CHNS, LocalDate.of(2019, 1, 13)));
+            assertEquals(chainsaw.finalCharge, forecast.getRevenue(LocalDate.MIN, LocalDate.MAX));
+
+            // Ladder checked out July 1, 2020 for 2 days is due on the observed holiday (Fri. July 3),
+            // which getNumChargeDays charges, so the due date is booked as well
+            forecast = new RevenueForecast(toolRental, new RentalAgreementStore(), LocalDate.of(2020, 7, 1));
+            RentalAgreement ladder = toolRental.generateRentalAgreement(ToolCode.LADW, 2, 0, LocalDate.of(2020, 7, 1));
+            forecast.addRental(ladder);
+
+            assertEquals(2, ladder.chargeDays);
+            assertEquals(1.99, forecast.getDailyRevenue(ToolCode.LADW, LocalDate.of(2020, 7, 2)));
+            assertEquals(1.99, forecast.getDailyRevenue(ToolCode.LADW, LocalDate.of(2020, 7, 3)));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void testRevenueForecastMoveWindow() {
+        ToolRental toolRental = new ToolRental();
+        RevenueForecast forecast = new RevenueForecast(toolRental, new RentalAgreementStore(), LocalDate.of(2020, 7, 1), 30);
+
+        try {
+            // Jackhammer reserved from Monday Aug. 10, 2020 for 5 days, past the 30 day window
+            RentalAgreement reservation = toolRental.generateRentalAgreement(ToolCode.JAKR, 5, 0, LocalDate.of(2020, 8, 10));
+            forecast.addRental(reservation);
+            assertEquals(0, forecast.getRevenue(LocalDate.MIN, LocalDate.MAX));
+
+            // Once the window moves forward the reservation is counted
+            forecast.moveWindow(LocalDate.of(2020, 8, 1));
+            assertEquals(reservation.finalCharge, forecast.getRevenue(LocalDate.MIN, LocalDate.MAX));
+            assertEquals(2.99, forecast.getDailyRevenue(ToolCode.JAKR, LocalDate.of(2020, 8, 11)));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        // The window must cover at least one day
+        assertThrows(IllegalArgumentException.class,
+                () -> new RevenueForecast(toolRental, new RentalAgreementStore(), LocalDate.of(2020, 7, 1), -1));
+    }
+
+    @Test
+    void testRentalAgreementStore() {
+        ToolRental toolRental = new ToolRental();
+        RentalAgreementStore store = new RentalAgreementStore();
+
+        try {
+            // Ladder due July 5, chainsaw due July 7, jackhammer due July 5
+            int ladderId = store.add(toolRental.generateRentalAgreement(ToolCode.LADW, 3, 10, LocalDate.of(2020, 7, 2)));
+            int chainsawId = store.add(toolRental.generateRentalAgreement(ToolCode.CHNS, 5, 25, LocalDate.of(2020, 7, 2)));
+            int jackhammerId = store.add(toolRental.generateRentalAgreement(ToolCode.JAKD, 2, 0, LocalDate.of(2020, 7, 3)));
+
+            assertEquals(1, ladderId);
+            assertEquals(3, store.size());
+            assertEquals(chainsawId, store.get(chainsawId).agreementId);
+
+            assertEquals(1, store.findByTool(ToolCode.CHNS).size());
+            assertEquals(0, store.findByTool(ToolCode.JAKR).size());
+            assertEquals(2, store.findByCheckoutDate(LocalDate.of(2020, 7, 2)).size());
+            assertEquals(2, store.findDueBack(LocalDate.of(2020, 7, 5)).size());
+
+            // Returned agreements are still found by due date, but are no longer due back or overdue
+            store.markReturned(jackhammerId);
+            assertTrue(store.isReturned(jackhammerId));
+            assertEquals(2, store.findByDueDate(LocalDate.of(2020, 7, 5)).size());
+            assertEquals(1, store.findDueBack(LocalDate.of(2020, 7, 5)).size());
+
+            assertEquals(0, store.findOverdue(LocalDate.of(2020, 7, 5)).size());
+            assertEquals(1, store.findOverdue(LocalDate.of(2020, 7, 6)).size());
+            assertEquals(2, store.findOverdue(LocalDate.of(2020, 7, 8)).size());
+
+            store.markReturned(ladderId);
+            assertEquals(ToolCode.CHNS, store.findOverdue(LocalDate.of(2020, 7, 8)).get(0).toolRented.toolCode);
+
+            // An agreement can only be stored once
+            RentalAgreement chainsaw = store.get(chainsawId);
+            assertThrows(Exception.class, () -> store.add(chainsaw));
+            assertEquals(chainsawId, chainsaw.agreementId);
+            assertEquals(3, store.size());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        // Unknown agreement ids are rejected
+        assertThrows(Exception.class, () -> store.get(999));
+        assertThrows(Exception.class, () -> store.isReturned(999));
+    }
+
+    @Test
+    void testRentalAgreementStoreOverdueWithHistory() {
+        RentalAgreementStore store = new RentalAgreementStore();
+
+        try {
+            // One agreement from 1900 that was never returned
+            int oldId = store.add(new RentalAgreement(new Ladder(), LocalDate.of(1900, 1, 1), LocalDate.of(1900, 1, 4),
+                    3, 3, 0, 5.97, 0, 5.97));
+
+            // A large returned history, one agreement per day from 1950 on
+            LocalDate historyStart = LocalDate.of(1950, 1, 1);
+            for (int i = 0; i < 100000; i++) {
+                LocalDate checkoutDate = historyStart.plusDays(i % 25000);
+                int agreementId = store.add(new RentalAgreement(new Chainsaw(), checkoutDate, checkoutDate.plusDays(2),
+                        2, 2, 0, 2.98, 0, 2.98));
+                store.markReturned(agreementId);
+            }
+
+            List<RentalAgreement> overdue = store.findOverdue(LocalDate.of(2024, 1, 1));
+            assertEquals(1, overdue.size());
+            assertEquals(oldId, overdue.get(0).agreementId);
+            assertEquals(4, store.findByDueDate(historyStart.plusDays(102)).size());
+            assertEquals(0, store.findDueBack(historyStart.plusDays(102)).size());
+
+            store.markReturned(oldId);
+            assertEquals(0, store.findOverdue(LocalDate.of(2024, 1, 1)).size());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void testRentalAgreementStoreReplace() {
+        ToolRental toolRental = new ToolRental();
+        RentalAgreementStore store = new RentalAgreementStore();
+        LocalDate checkoutDate = LocalDate.of(2020, 7, 1);
+
+        try {
+            // 1000 agreements all due July 4, most of them already returned
+            for (int i = 0; i < 1000; i++) {
+                int agreementId = store.add(toolRental.generateRentalAgreement(ToolCode.LADW, 3, 0, checkoutDate));
+                if (i % 10 != 0) {
+                    store.markReturned(agreementId);
+                }
+            }
+
+            // Extend agreements from the front, middle and back of the day's bucket
+            int[] extendedIds = {1, 500, 1000, 2, 999};
+            for (int agreementId : extendedIds) {
+                store.replace(agreementId, toolRental.generateRentalAgreement(ToolCode.LADW, 5, 0, checkoutDate));
+            }
+
+            assertEquals(995, store.findByDueDate(LocalDate.of(2020, 7, 4)).size());
+            assertEquals(5, store.findByDueDate(LocalDate.of(2020, 7, 6)).size());
+            for (RentalAgreement agreement : store.findByDueDate(LocalDate.of(2020, 7, 4))) {
+                assertEquals(LocalDate.of(2020, 7, 4), agreement.dueDate);
+            }
+            // Only ids 1, 11, 21, ... are still out, so id 1 is the only extended agreement due back July 6
+            assertEquals(1, store.findDueBack(LocalDate.of(2020, 7, 6)).size());
+            assertEquals(1, store.findDueBack(LocalDate.of(2020, 7, 6)).get(0).agreementId);
+            assertEquals(99, store.findDueBack(LocalDate.of(2020, 7, 4)).size());
+
+            // Extending one again moves it on, and the rest of July 6 is unaffected
+            store.replace(500, toolRental.generateRentalAgreement(ToolCode.LADW, 6, 0, checkoutDate));
+            assertEquals(4, store.findByDueDate(LocalDate.of(2020, 7, 6)).size());
+            assertEquals(500, store.findByDueDate(LocalDate.of(2020, 7, 7)).get(0).agreementId);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void testRentalAgreementStoreManyDays() {
+        RentalAgreementStore store = new RentalAgreementStore();
+
+        // Enough distinct checkout and due dates to grow the date indexes several times over
+        LocalDate firstCheckoutDate = LocalDate.of(2000, 1, 1);
+        int numDays = 5000;
+        try {
+            for (int i = 0; i < numDays; i++) {
+                // Spread checkout dates apart so neighbouring keys land in different slots
+                LocalDate checkoutDate = firstCheckoutDate.plusDays(i * 37L);
+                store.add(new RentalAgreement(new Ladder(), checkoutDate, checkoutDate.plusDays(5),
+                        5, 5, 0, 9.95, 0, 9.95));
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        for (int i = 0; i < numDays; i++) {
+            LocalDate checkoutDate = firstCheckoutDate.plusDays(i * 37L);
+            List<RentalAgreement> checkedOut = store.findByCheckoutDate(checkoutDate);
+            assertEquals(1, checkedOut.size());
+            assertEquals(i + 1, checkedOut.get(0).agreementId);
+            assertEquals(1, store.findByDueDate(checkoutDate.plusDays(5)).size());
+            // Days in between have nothing checked out
+            assertEquals(0, store.findByCheckoutDate(checkoutDate.plusDays(1)).size());
+        }
+        assertEquals(numDays, store.findByTool(ToolCode.LADW).size());
+    }
 }
\ No newline at end of file